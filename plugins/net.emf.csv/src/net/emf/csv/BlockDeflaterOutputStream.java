@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Pierre Gaufillet.
+ *  This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *     Pierre Gaufillet - initial API and implementation
+ *******************************************************************************/
+
+package net.emf.csv;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.Deflater;
+
+/**
+ * This class provides an OutputStream that cuts its content into blocks,
+ * preferably on line boundaries, and deflates them in parallel. Blocks are
+ * written in order, followed by a block index. The format is:
+ * 
+ * <pre>
+ * "CSVZ" version
+ * { rawLength compressedLength zlibData }*
+ * 0
+ * blockCount { offset rawLength compressedLength }*
+ * indexOffset "CSVZ"
+ * </pre>
+ * 
+ * Integers are big endian ints, offsets are longs.
+ */
+public class BlockDeflaterOutputStream extends FilterOutputStream {
+
+	static final byte[] MAGIC = { 'C', 'S', 'V', 'Z' };
+
+	static final int VERSION = 1;
+
+	/**
+	 * Default uncompressed size of a block.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+	private final int blockSize;
+
+	private final int level;
+
+	/**
+	 * Maximum number of blocks being compressed at the same time.
+	 */
+	private final int maxPending = Runtime.getRuntime().availableProcessors() * 2;
+
+	private final DataOutputStream dataOut;
+
+	private byte[] buffer;
+
+	private int count = 0;
+
+	private Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+
+	private Deque<Integer> pendingRawLengths = new ArrayDeque<>();
+
+	/**
+	 * Block index: offset, raw length and compressed length of each block.
+	 */
+	private List<long[]> index = new ArrayList<>();
+
+	/**
+	 * Number of bytes written to the underlying stream.
+	 */
+	private long offset = 0;
+
+	private boolean closed = false;
+
+	public BlockDeflaterOutputStream(OutputStream out) throws IOException {
+		this(out, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * @param out       the underlying stream
+	 * @param blockSize the uncompressed size of a block
+	 * @param level     the compression level, see Deflater
+	 * @throws IOException
+	 */
+	public BlockDeflaterOutputStream(OutputStream out, int blockSize, int level) throws IOException {
+		super(out);
+		this.blockSize = blockSize;
+		this.level = level;
+		buffer = new byte[blockSize * 2];
+		dataOut = new DataOutputStream(out);
+		dataOut.write(MAGIC);
+		dataOut.writeByte(VERSION);
+		offset = MAGIC.length + 1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterOutputStream#write(int)
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterOutputStream#write(byte[], int, int)
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while(len > 0) {
+			int n = Math.min(len, buffer.length - count);
+			System.arraycopy(b, off, buffer, count, n);
+			count += n;
+			off += n;
+			len -= n;
+			if(count >= blockSize) {
+				cutBlock();
+			}
+		}
+	}
+
+	/**
+	 * Submits the buffered content up to the last complete line, or the whole
+	 * buffer if it is full and contains no line end.
+	 */
+	private void cutBlock() throws IOException {
+		int end = count;
+		while(end > 0 && buffer[end - 1] != '\n') {
+			end--;
+		}
+		if(end == 0) {
+			// No line end: wait for more content unless the buffer is full
+			if(count < buffer.length) {
+				return;
+			}
+			end = count;
+		}
+		submit(Arrays.copyOf(buffer, end));
+		System.arraycopy(buffer, end, buffer, 0, count - end);
+		count -= end;
+	}
+
+	private void submit(byte[] raw) throws IOException {
+		pending.add(CompletableFuture.supplyAsync(() -> deflate(raw)));
+		pendingRawLengths.add(raw.length);
+		while(pending.size() > maxPending) {
+			writeBlock();
+		}
+	}
+
+	private byte[] deflate(byte[] raw) {
+		Deflater deflater = new Deflater(level);
+		try {
+			deflater.setInput(raw);
+			deflater.finish();
+			ByteArrayOutputStream bos = new ByteArrayOutputStream(raw.length / 4 + 64);
+			byte[] buf = new byte[8192];
+			while(!deflater.finished()) {
+				int n = deflater.deflate(buf);
+				bos.write(buf, 0, n);
+			}
+			return bos.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Writes the oldest pending block, waiting for its compression if needed.
+	 */
+	private void writeBlock() throws IOException {
+		byte[] compressed;
+		try {
+			compressed = pending.poll().join();
+		} catch(CompletionException e) {
+			throw new IOException(e.getCause());
+		}
+		int rawLength = pendingRawLengths.poll();
+		index.add(new long[] { offset, rawLength, compressed.length });
+		dataOut.writeInt(rawLength);
+		dataOut.writeInt(compressed.length);
+		dataOut.write(compressed);
+		offset += 8 + compressed.length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterOutputStream#flush()
+	 */
+	@Override
+	public void flush() throws IOException {
+		// Do nothing. Blocks are written when full or when the stream is closed.
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterOutputStream#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if(count > 0) {
+				submit(Arrays.copyOf(buffer, count));
+				count = 0;
+			}
+			while(!pending.isEmpty()) {
+				writeBlock();
+			}
+			dataOut.writeInt(0);
+
+			// Block index and trailer
+			long indexOffset = offset + 4;
+			dataOut.writeInt(index.size());
+			for(long[] entry: index) {
+				dataOut.writeLong(entry[0]);
+				dataOut.writeInt((int) entry[1]);
+				dataOut.writeInt((int) entry[2]);
+			}
+			dataOut.writeLong(indexOffset);
+			dataOut.write(MAGIC);
+			dataOut.flush();
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Pierre Gaufillet.
+ *  This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *     Pierre Gaufillet - initial API and implementation
+ *******************************************************************************/
+
+package net.emf.csv;
+
+import java.io.DataInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * This class provides an InputStream reading the block compressed format of
+ * BlockDeflaterOutputStream. Blocks are read sequentially from the underlying
+ * stream and inflated in parallel ahead of the reader. The block index at the
+ * end of the stream is not needed for sequential reading and is skipped.
+ */
+public class BlockInflaterInputStream extends FilterInputStream {
+
+	/**
+	 * Maximum number of blocks being inflated ahead of the reader.
+	 */
+	private final int maxPending = Runtime.getRuntime().availableProcessors() * 2;
+
+	private final DataInputStream dataIn;
+
+	private Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+
+	/**
+	 * True when the end of blocks marker has been read.
+	 */
+	private boolean lastBlockRead = false;
+
+	private byte[] block = new byte[0];
+
+	private int pos = 0;
+
+	public BlockInflaterInputStream(InputStream in) throws IOException {
+		super(in);
+		dataIn = new DataInputStream(in);
+		byte[] magic = new byte[BlockDeflaterOutputStream.MAGIC.length];
+		dataIn.readFully(magic);
+		if(!Arrays.equals(magic, BlockDeflaterOutputStream.MAGIC)) {
+			throw new IOException("Not a block compressed CSV stream");
+		}
+		int version = dataIn.readUnsignedByte();
+		if(version != BlockDeflaterOutputStream.VERSION) {
+			throw new IOException("Unsupported block compressed CSV version: " + version);
+		}
+	}
+
+	/**
+	 * Reads compressed blocks and submits them until enough blocks are pending.
+	 */
+	private void fill() throws IOException {
+		while(!lastBlockRead && pending.size() < maxPending) {
+			int rawLength = dataIn.readInt();
+			if(rawLength == 0) {
+				lastBlockRead = true;
+			} else {
+				int compressedLength = dataIn.readInt();
+				byte[] compressed = new byte[compressedLength];
+				dataIn.readFully(compressed);
+				pending.add(CompletableFuture.supplyAsync(() -> inflate(compressed, rawLength)));
+			}
+		}
+	}
+
+	private byte[] inflate(byte[] compressed, int rawLength) {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			byte[] raw = new byte[rawLength];
+			int n = 0;
+			while(n < rawLength && !inflater.finished()) {
+				int r = inflater.inflate(raw, n, rawLength - n);
+				if(r == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				n += r;
+			}
+			if(n != rawLength) {
+				throw new CompletionException(new DataFormatException("Truncated block"));
+			}
+			return raw;
+		} catch(DataFormatException e) {
+			throw new CompletionException(e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * @return false if the end of the stream is reached.
+	 */
+	private boolean nextBlock() throws IOException {
+		while(pos >= block.length) {
+			fill();
+			if(pending.isEmpty()) {
+				return false;
+			}
+			try {
+				block = pending.poll().join();
+			} catch(CompletionException e) {
+				throw new IOException(e.getCause());
+			}
+			pos = 0;
+		}
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterInputStream#read()
+	 */
+	@Override
+	public int read() throws IOException {
+		if(!nextBlock()) {
+			return -1;
+		}
+		return block[pos++] & 0xff;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterInputStream#read(byte[], int, int)
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(len == 0) {
+			return 0;
+		}
+		if(!nextBlock()) {
+			return -1;
+		}
+		int n = Math.min(len, block.length - pos);
+		System.arraycopy(block, pos, b, off, n);
+		pos += n;
+		return n;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterInputStream#skip(long)
+	 */
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = 0;
+		while(skipped < n && nextBlock()) {
+			int s = (int) Math.min(n - skipped, block.length - pos);
+			pos += s;
+			skipped += s;
+		}
+		return skipped;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterInputStream#available()
+	 */
+	@Override
+	public int available() throws IOException {
+		return block.length - pos;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterInputStream#markSupported()
+	 */
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterInputStream#mark(int)
+	 */
+	@Override
+	public void mark(int readlimit) {
+		// Not supported
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.FilterInputStream#reset()
+	 */
+	@Override
+	public void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+}
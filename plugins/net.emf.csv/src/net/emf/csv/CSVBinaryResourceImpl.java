@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Pierre Gaufillet.
+ *  This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *     Pierre Gaufillet - initial API and implementation
+ *******************************************************************************/
+
+package net.emf.csv;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+
+/**
+ * EMF binary resource keeping the CSV id of its objects, as XMI resources do
+ * with xmi:id. The binary format cannot store them, so the ids are saved aside,
+ * in a file with the additional IDS_FILE_EXTENSION extension, listed in the
+ * order of getAllContents. Ids are used as URI fragments, so that references
+ * from other resources by CSV id are resolved.
+ */
+public class CSVBinaryResourceImpl extends BinaryResourceImpl {
+
+	/**
+	 * File extension of binary resources keeping CSV ids.
+	 */
+	public static final String FILE_EXTENSION = "csvbin";
+
+	/**
+	 * Extension appended to the resource URI to store the ids.
+	 */
+	public static final String IDS_FILE_EXTENSION = "ids";
+
+	protected EObjectIdBiMap eObjectIdBiMap = new EObjectIdBiMap();
+
+	public CSVBinaryResourceImpl() {
+		super();
+	}
+
+	public CSVBinaryResourceImpl(URI uri) {
+		super(uri);
+	}
+
+	/**
+	 * @param eObject an object of the resource
+	 * @return the id of eObject, or null if it has none
+	 */
+	public String getID(EObject eObject) {
+		// EObjectIdBiMap.get generates ids for unknown objects
+		return eObjectIdBiMap.containsKey(eObject) ? eObjectIdBiMap.get(eObject) : null;
+	}
+
+	/**
+	 * @param eObject an object of the resource
+	 * @param id      the new id of eObject, or null to remove its id
+	 */
+	public void setID(EObject eObject, String id) {
+		String oldId = getID(eObject);
+		if(oldId != null) {
+			eObjectIdBiMap.remove(oldId);
+		}
+		if(id != null) {
+			eObjectIdBiMap.put(id, eObject);
+		}
+	}
+
+	/**
+	 * @return the URI of the file storing the ids, or null if the resource has no
+	 *         URI.
+	 */
+	protected URI getIdsURI() {
+		return getURI() == null ? null : getURI().appendFileExtension(IDS_FILE_EXTENSION);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl#doLoad(java.io.
+	 * InputStream, java.util.Map)
+	 */
+	@Override
+	protected void doLoad(InputStream inputStream, Map<?, ?> options) throws IOException {
+		super.doLoad(inputStream, options);
+		URI idsURI = getIdsURI();
+		if(idsURI == null || !getURIConverter().exists(idsURI, options)) {
+			return;
+		}
+		CSVFormat fmt = CSVFormat.EXCEL.withDelimiter(';');
+		try (InputStream is = getURIConverter().createInputStream(idsURI, options);
+				CSVParser parser = CSVParser.parse(is, StandardCharsets.UTF_8, fmt)) {
+			Iterator<CSVRecord> records = parser.iterator();
+			for(Iterator<EObject> i = getAllContents(); i.hasNext();) {
+				EObject eo = i.next();
+				if(!records.hasNext()) {
+					throw new IOException(idsURI + " does not match " + getURI());
+				}
+				String id = records.next().get(0);
+				if(!id.isEmpty()) {
+					eObjectIdBiMap.put(id, eo);
+				}
+			}
+			if(records.hasNext()) {
+				throw new IOException(idsURI + " does not match " + getURI());
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl#doSave(java.io.
+	 * OutputStream, java.util.Map)
+	 */
+	@Override
+	protected void doSave(OutputStream outputStream, Map<?, ?> options) throws IOException {
+		super.doSave(outputStream, options);
+		URI idsURI = getIdsURI();
+		if(idsURI == null) {
+			return;
+		}
+		CSVFormat fmt = CSVFormat.EXCEL.withDelimiter(';');
+		try (OutputStream os = getURIConverter().createOutputStream(idsURI, options);
+				org.apache.commons.csv.CSVPrinter printer = fmt
+						.print(new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8)))) {
+			for(Iterator<EObject> i = getAllContents(); i.hasNext();) {
+				String id = getID(i.next());
+				printer.printRecord(id == null ? "" : id);
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.emf.ecore.resource.impl.ResourceImpl#doUnload()
+	 */
+	@Override
+	protected void doUnload() {
+		// Unloaded objects become proxies using the ids
+		super.doUnload();
+		eObjectIdBiMap = new EObjectIdBiMap();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.eclipse.emf.ecore.resource.impl.ResourceImpl#getURIFragment(org.eclipse.
+	 * emf.ecore.EObject)
+	 */
+	@Override
+	public String getURIFragment(EObject eObject) {
+		String id = getID(eObject);
+		return id != null ? id : super.getURIFragment(eObject);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.eclipse.emf.ecore.resource.impl.ResourceImpl#getEObjectByID(java.lang.
+	 * String)
+	 */
+	@Override
+	protected EObject getEObjectByID(String id) {
+		EObject eo = eObjectIdBiMap.get(id);
+		return eo != null ? eo : super.getEObjectByID(id);
+	}
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Pierre Gaufillet.
+ *  This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *     Pierre Gaufillet - initial API and implementation
+ *******************************************************************************/
+
+package net.emf.csv;
+
+import org.eclipse.emf.common.util.BasicDiagnostic;
+import org.eclipse.emf.ecore.resource.Resource;
+
+/**
+ * Diagnostic about a line of a CSV resource. It can be reported both as an EMF
+ * Diagnostic and as a Resource error or warning.
+ */
+public class CSVDiagnostic extends BasicDiagnostic implements Resource.Diagnostic {
+
+	private final String location;
+
+	private final int line;
+
+	/**
+	 * @param severity the severity, see Diagnostic
+	 * @param code     the code, see CSVValidator
+	 * @param message  the message
+	 * @param location the location of the resource, possibly null
+	 * @param line     the line number, starting at 1
+	 * @param data     the id, or null if it is not known, and possibly the
+	 *                 feature name concerned
+	 */
+	public CSVDiagnostic(int severity, int code, String message, String location, int line, Object... data) {
+		super(severity, CSVValidator.DIAGNOSTIC_SOURCE, code, message, data);
+		this.location = location;
+		this.line = line;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.emf.ecore.resource.Resource.Diagnostic#getLocation()
+	 */
+	@Override
+	public String getLocation() {
+		return location;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.emf.ecore.resource.Resource.Diagnostic#getLine()
+	 */
+	@Override
+	public int getLine() {
+		return line;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.emf.ecore.resource.Resource.Diagnostic#getColumn()
+	 */
+	@Override
+	public int getColumn() {
+		return 0;
+	}
+}
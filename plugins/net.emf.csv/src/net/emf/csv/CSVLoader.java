@@ -14,6 +14,7 @@ package net.emf.csv;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -21,23 +22,26 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.eclipse.emf.common.util.Diagnostic;
+import org.eclipse.emf.common.util.ECollections;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EAttribute;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EClassifier;
 import org.eclipse.emf.ecore.EDataType;
-import org.eclipse.emf.ecore.EFactory;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EPackage;
 import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.EStructuralFeature;
-import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.EStructuralFeature.Setting;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.ecore.util.InternalEList;
@@ -48,6 +52,25 @@ public class CSVLoader {
 
 	private ResourceSet rs;
 
+	private EDataTypeCodecRegistry codecs = EDataTypeCodecRegistry.INSTANCE;
+
+	/**
+	 * Codecs resolved in codecs, by EDataType.
+	 */
+	private Map<EDataType, EDataTypeCodec> resolvedCodecs = new HashMap<>();
+
+	/**
+	 * Hash of the last loaded line of each id, if recorded.
+	 */
+	private Map<String, Long> lineHashes = null;
+
+	/**
+	 * Validator run before creating objects, if any.
+	 */
+	private CSVValidator validator = null;
+
+	private Diagnostic diagnostic = null;
+
 	public CSVLoader() {
 		rs = null;
 	}
@@ -57,6 +80,79 @@ public class CSVLoader {
 		eObjectIdBiMap = map;
 	}
 
+	public CSVLoader(ResourceSet rs, EObjectIdBiMap map, EDataTypeCodecRegistry codecs) {
+		this(rs, map);
+		this.codecs = codecs;
+	}
+
+	/**
+	 * @param lineHashes the map recording the hash of each loaded line, by id. It
+	 *                   is filled by load and required by reload.
+	 */
+	public void setLineHashes(Map<String, Long> lineHashes) {
+		this.lineHashes = lineHashes;
+	}
+
+	/**
+	 * @param validator if not null, the records are validated before any object
+	 *                  is created and load fails if errors are found.
+	 */
+	public void setValidator(CSVValidator validator) {
+		this.validator = validator;
+	}
+
+	/**
+	 * @return the result of the validation of the last load or reload, or null
+	 *         if no validator is set.
+	 */
+	public Diagnostic getDiagnostic() {
+		return diagnostic;
+	}
+
+	/**
+	 * @param fields the fields of a CSV line
+	 * @return a 64 bits hash (FNV-1a) of the line
+	 */
+	protected static long hashRecord(Iterable<String> fields) {
+		long h = 0xcbf29ce484222325L;
+		for(String field: fields) {
+			// A null field is printed as an empty one
+			for(int i = 0; field != null && i < field.length(); i++) {
+				h ^= field.charAt(i);
+				h *= 0x100000001b3L;
+			}
+			// Field separator
+			h ^= 0x1f;
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	/**
+	 * @return the codec of dataType, looked up once per loader
+	 */
+	private EDataTypeCodec getCodec(EDataType dataType) {
+		EDataTypeCodec codec = resolvedCodecs.get(dataType);
+		if(codec == null) {
+			codec = codecs.resolve(dataType);
+			resolvedCodecs.put(dataType, codec);
+		}
+		return codec;
+	}
+
+	private Map<String, String> getProperties(CSVRecord r) {
+		Map<String, String> properties = new HashMap<>();
+		Iterator<String> i = r.iterator();
+		i.next();
+		i.next();
+		while(i.hasNext()) {
+			String name = i.next();
+			String value = i.next();
+			properties.put(name, value);
+		}
+		return properties;
+	}
+
 	/**
 	 * 
 	 * @param s
@@ -72,15 +168,7 @@ public class CSVLoader {
 			properties.put(name, value);
 		}
 
-		// Extract EPackage URI from typeURI
-		URI typeURI = URI.createURI(eType);
-		String nsURI = typeURI.trimFragment().toString();
-		EPackage p = EPackage.Registry.INSTANCE.getEPackage(nsURI);
-		Resource pRes = p.eResource();
-		EClassifier classifier = null;
-		if(pRes != null) {
-			classifier = (EClassifier) pRes.getEObject(typeURI.fragment().toString());
-		}
+		EClassifier classifier = getEClassifier(eType);
 		EObject eo = null;
 		EClass clazz = null;
 
@@ -109,16 +197,16 @@ public class CSVLoader {
 				EClassifier esfType = esf.getEType();
 				if(esfType instanceof EDataType) {
 					EDataType dataType = (EDataType) esfType;
-					EFactory eFactory = dataType.getEPackage().getEFactoryInstance();
+					EDataTypeCodec codec = getCodec(dataType);
 					if(esf.isMany()) {
 						@SuppressWarnings("unchecked")
 						InternalEList<Object> list = (InternalEList<Object>) eo.eGet(esf);
 						List<String> values = Arrays.asList(properties.get(name).split(","));
 						for(String value: values) {
-							list.addUnique(eFactory.createFromString(dataType, value));
+							list.addUnique(codec.createFromString(dataType, value));
 						}
 					} else {
-						Object value = eFactory.createFromString(dataType, properties.get(name));
+						Object value = codec.createFromString(dataType, properties.get(name));
 						eo.eSet(esf, value);
 					}
 				}
@@ -178,7 +266,38 @@ public class CSVLoader {
 		}
 	}
 
-	private EObject getEObject(String ref) {
+	/**
+	 * @param eType the type URI of a CSV line
+	 * @return the corresponding EClassifier, or null if it cannot be found
+	 */
+	protected static EClassifier getEClassifier(String eType) {
+		// Extract EPackage URI from typeURI
+		URI typeURI;
+		try {
+			typeURI = URI.createURI(eType);
+		} catch(IllegalArgumentException e) {
+			return null;
+		}
+		if(typeURI.fragment() == null) {
+			return null;
+		}
+		String nsURI = typeURI.trimFragment().toString();
+		EPackage p = EPackage.Registry.INSTANCE.getEPackage(nsURI);
+		EClassifier classifier = null;
+		if(p != null && p.eResource() != null) {
+			EObject eo = p.eResource().getEObject(typeURI.fragment());
+			if(eo instanceof EClassifier) {
+				classifier = (EClassifier) eo;
+			}
+		}
+		return classifier;
+	}
+
+	/**
+	 * @param ref an id or an URI
+	 * @return the referenced EObject, or null if it cannot be found
+	 */
+	protected EObject getEObject(String ref) {
 		EObject eoDest;
 		if(eObjectIdBiMap.containsKey(ref)) {
 			eoDest = eObjectIdBiMap.get(ref);
@@ -203,9 +322,275 @@ public class CSVLoader {
 		CSVFormat fmt = CSVFormat.EXCEL.withDelimiter(';');
 		Iterable<CSVRecord> records = CSVParser.parse(inputStream, StandardCharsets.UTF_8, fmt).getRecords();
 
+		if(validator != null) {
+			diagnostic = validator.validate(records);
+			if(diagnostic.getSeverity() == Diagnostic.ERROR) {
+				throw new IOException(diagnostic.getMessage());
+			}
+		}
+
 		records.forEach(r -> createObjects(r, eObjects));
 		records.forEach(r -> resolveReferences(r, eObjects));
 
+		if(lineHashes != null) {
+			records.forEach(r -> lineHashes.put(r.get(1), hashRecord(r)));
+		}
+
 		return eObjects;
 	}
+
+	/**
+	 * Applies the changes of a CSV file to already loaded objects. Only the lines
+	 * whose hash differs from the last load are applied, so that unchanged
+	 * objects are kept as is. The changed lines are validated, and their
+	 * references to other resources resolved, before any object is modified.
+	 * If a validator is set, the whole file is validated instead.
+	 *
+	 * @param inputStream the new content of the CSV file
+	 * @param contents    the root objects of the resource, updated in place
+	 * @throws IOException
+	 */
+	public void reload(InputStream inputStream, List<EObject> contents) throws IOException {
+		if(lineHashes == null) {
+			throw new IllegalStateException("Line hashes of the previous load are required");
+		}
+
+		// Find changed lines, keeping only them in memory
+		Map<String, Long> newHashes = new HashMap<>();
+		List<CSVRecord> changed = new ArrayList<>();
+		String[] problem = new String[1];
+		Consumer<CSVRecord> tracker = r -> {
+			if(r.size() < 2) {
+				problem[0] = problem[0] != null ? problem[0] : "Malformed line " + r.getRecordNumber();
+				return;
+			}
+			long h = hashRecord(r);
+			if(newHashes.put(r.get(1), h) != null) {
+				problem[0] = problem[0] != null ? problem[0]
+						: "Duplicate id '" + r.get(1) + "' at line " + r.getRecordNumber();
+			}
+			Long previous = lineHashes.get(r.get(1));
+			if(previous == null || previous != h) {
+				changed.add(r);
+			}
+		};
+		CSVFormat fmt = CSVFormat.EXCEL.withDelimiter(';');
+		try (CSVParser parser = CSVParser.parse(inputStream, StandardCharsets.UTF_8, fmt)) {
+			if(validator != null) {
+				// Whole file validation, in the same pass
+				diagnostic = validator.validate(() -> new Iterator<CSVRecord>() {
+					private final Iterator<CSVRecord> i = parser.iterator();
+
+					@Override
+					public boolean hasNext() {
+						return i.hasNext();
+					}
+
+					@Override
+					public CSVRecord next() {
+						CSVRecord r = i.next();
+						tracker.accept(r);
+						return r;
+					}
+				});
+				if(diagnostic.getSeverity() == Diagnostic.ERROR) {
+					throw new IOException(diagnostic.getMessage());
+				}
+			} else {
+				parser.forEach(tracker);
+			}
+		}
+		if(problem[0] != null) {
+			throw new IOException(problem[0]);
+		}
+
+		// Check changed lines and resolve references to other resources before
+		// modifying anything
+		if(validator == null) {
+			Diagnostic changedDiagnostic = new CSVValidator(codecs).validate(changed, newHashes.keySet());
+			if(changedDiagnostic.getSeverity() == Diagnostic.ERROR) {
+				throw new IOException(changedDiagnostic.getChildren().get(0).getMessage());
+			}
+		}
+		for(CSVRecord r: changed) {
+			EClass clazz = (EClass) getEClassifier(r.get(0));
+			for(Map.Entry<String, String> e: getProperties(r).entrySet()) {
+				if(clazz.getEStructuralFeature(e.getKey()) instanceof EReference) {
+					for(String ref: e.getValue().split(",")) {
+						if(!newHashes.containsKey(ref)) {
+							resolveExternalReference(ref, r);
+						}
+					}
+				}
+			}
+		}
+
+		// Objects removed from the file, or whose type has changed
+		Set<EObject> removed = new HashSet<>();
+		for(String id: lineHashes.keySet()) {
+			if(!newHashes.containsKey(id) && eObjectIdBiMap.containsKey(id)) {
+				removed.add(eObjectIdBiMap.remove(id));
+			}
+		}
+		Map<EObject, String> replaced = new HashMap<>();
+		for(CSVRecord r: changed) {
+			EObject eo = eObjectIdBiMap.get(r.get(1));
+			if(eo != null && eo.eClass() != getEClassifier(r.get(0))) {
+				eObjectIdBiMap.remove(r.get(1));
+				removed.add(eo);
+				replaced.put(eo, r.get(1));
+			}
+		}
+
+		// Create new objects and update the attributes of changed ones
+		Set<EObject> candidateRoots = new HashSet<>();
+		for(CSVRecord r: changed) {
+			EObject eo = eObjectIdBiMap.get(r.get(1));
+			if(eo == null) {
+				createObjects(r, candidateRoots);
+			} else {
+				updateAttributes(eo, getProperties(r));
+				candidateRoots.add(eo);
+			}
+		}
+
+		// Unchanged lines keep referring to the ids of replaced objects
+		if(!replaced.isEmpty()) {
+			Map<EObject, Collection<Setting>> usages = EcoreUtil.UsageCrossReferencer.findAll(replaced.keySet(),
+					contents);
+			for(Map.Entry<EObject, String> e: replaced.entrySet()) {
+				EObject newEo = eObjectIdBiMap.get(e.getValue());
+				Collection<Setting> settings = usages.get(e.getKey());
+				if(settings != null) {
+					for(Setting s: settings) {
+						if(!removed.contains(s.getEObject())) {
+							EcoreUtil.replace(s, e.getKey(), newEo);
+						}
+					}
+				}
+				// Takes the place of the old object in its container, or in contents
+				EObject container = e.getKey().eContainer();
+				if(container == null ? e.getKey().eResource() != null : !removed.contains(container)) {
+					EcoreUtil.replace(e.getKey(), newEo);
+				}
+			}
+		}
+
+		// Update references. Objects leaving a containment may become roots.
+		for(CSVRecord r: changed) {
+			EObject eo = eObjectIdBiMap.get(r.get(1));
+			for(EReference er: eo.eClass().getEAllContainments()) {
+				if(er.isMany()) {
+					@SuppressWarnings("unchecked")
+					List<EObject> children = (List<EObject>) eo.eGet(er);
+					candidateRoots.addAll(children);
+				} else if(eo.eGet(er) != null) {
+					candidateRoots.add((EObject) eo.eGet(er));
+				}
+			}
+			updateReferences(eo, getProperties(r));
+		}
+
+		// Kept objects still contained by removed ones may become roots
+		for(EObject eo: removed) {
+			for(EObject child: eo.eContents()) {
+				String id = eObjectIdBiMap.get(child);
+				if(id != null && newHashes.containsKey(id)) {
+					candidateRoots.add(child);
+				}
+			}
+		}
+
+		for(EObject eo: removed) {
+			EcoreUtil.remove(eo);
+		}
+
+		for(EObject eo: candidateRoots) {
+			EObject container = eo.eContainer();
+			if(!removed.contains(eo) && eo.eResource() == null
+					&& (container == null || removed.contains(container))) {
+				EcoreUtil.remove(eo);
+				contents.add(eo);
+			}
+		}
+
+		lineHashes.clear();
+		lineHashes.putAll(newHashes);
+	}
+
+	private void resolveExternalReference(String ref, CSVRecord r) throws IOException {
+		EObject target;
+		try {
+			target = getEObject(ref);
+		} catch(RuntimeException e) {
+			throw new IOException("Unresolved reference '" + ref + "' at line " + r.getRecordNumber(), e);
+		}
+		if(target == null) {
+			throw new IOException("Unresolved reference '" + ref + "' at line " + r.getRecordNumber());
+		}
+	}
+
+	/**
+	 * Sets the attributes of an existing object to the values of its new line.
+	 * Values are only changed if they differ.
+	 */
+	private void updateAttributes(EObject eo, Map<String, String> properties) {
+		for(EAttribute ea: eo.eClass().getEAllAttributes()) {
+			if(ea.isTransient() || ea.isDerived() || !ea.isChangeable() || ea.isID()) {
+				continue;
+			}
+			EDataType dataType = ea.getEAttributeType();
+			String value = properties.get(ea.getName());
+			if(value == null) {
+				if(eo.eIsSet(ea)) {
+					eo.eUnset(ea);
+				}
+			} else if(ea.isMany()) {
+				EDataTypeCodec codec = getCodec(dataType);
+				List<Object> values = new ArrayList<>();
+				for(String v: value.split(",")) {
+					values.add(codec.createFromString(dataType, v));
+				}
+				@SuppressWarnings("unchecked")
+				EList<Object> list = (EList<Object>) eo.eGet(ea);
+				ECollections.setEList(list, values);
+			} else {
+				Object newValue = getCodec(dataType).createFromString(dataType, value);
+				if(!eo.eIsSet(ea) || !Objects.equals(eo.eGet(ea), newValue)) {
+					eo.eSet(ea, newValue);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets the references of an existing object to the targets of its new line.
+	 * Targets are only changed if they differ.
+	 */
+	private void updateReferences(EObject eo, Map<String, String> properties) {
+		for(EReference er: eo.eClass().getEAllReferences()) {
+			if(er.isTransient() || er.isDerived() || !er.isChangeable()) {
+				continue;
+			}
+			String value = properties.get(er.getName());
+			if(value == null) {
+				if(eo.eIsSet(er)) {
+					eo.eUnset(er);
+				}
+			} else if(er.isMany()) {
+				List<EObject> targets = new ArrayList<>();
+				for(String ref: value.split(",")) {
+					targets.add(getEObject(ref));
+				}
+				@SuppressWarnings("unchecked")
+				EList<EObject> list = (EList<EObject>) eo.eGet(er);
+				ECollections.setEList(list, targets);
+			} else {
+				EObject target = getEObject(value);
+				if(eo.eGet(er) != target) {
+					eo.eSet(er, target);
+				}
+			}
+		}
+	}
 }
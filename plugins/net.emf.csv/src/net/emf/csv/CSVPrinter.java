@@ -16,14 +16,15 @@ import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.csv.CSVFormat;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.ecore.EAttribute;
 import org.eclipse.emf.ecore.EDataType;
-import org.eclipse.emf.ecore.EFactory;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.EStructuralFeature;
@@ -40,6 +41,17 @@ public class CSVPrinter {
 
 	private String listDelimiter = ",";
 
+	private EDataTypeCodecRegistry codecs = EDataTypeCodecRegistry.INSTANCE;
+
+	/**
+	 * Codecs resolved in codecs, by EDataType.
+	 */
+	private Map<EDataType, EDataTypeCodec> resolvedCodecs = new HashMap<>();
+
+	private boolean resolveProxies = true;
+
+	private Map<String, Long> lineHashes = null;
+
 	/**
 	 * 
 	 */
@@ -48,6 +60,27 @@ public class CSVPrinter {
 		eObjectIdBiMap = map;
 	}
 
+	public CSVPrinter(Writer w, EObjectIdBiMap map, EDataTypeCodecRegistry codecs) throws IOException {
+		this(w, map);
+		this.codecs = codecs;
+	}
+
+	/**
+	 * @param resolveProxies if false, referenced proxies are not resolved while
+	 *                       printing. They are then passed as is to
+	 *                       getReference.
+	 */
+	public void setResolveProxies(boolean resolveProxies) {
+		this.resolveProxies = resolveProxies;
+	}
+
+	/**
+	 * @param lineHashes if not null, records the hash of each printed line by id.
+	 */
+	public void setLineHashes(Map<String, Long> lineHashes) {
+		this.lineHashes = lineHashes;
+	}
+
 	// eos shall be contained in the same model/resource/resourceset
 	public void print(Set<? extends EObject> eos) throws IOException {
 		for(EObject eo: eos) {
@@ -96,6 +129,9 @@ public class CSVPrinter {
 			}
 		}
 		printer.printRecord(fields);
+		if(lineHashes != null) {
+			lineHashes.put(id, CSVLoader.hashRecord(fields));
+		}
 
 		// Last, explore children.
 		for(EObject c: eo.eContents()) {
@@ -116,17 +152,21 @@ public class CSVPrinter {
 	protected List<String> printEAttribute(EObject eo, EAttribute ea) {
 		List<String> retVal = new ArrayList<>();
 		Object val = eo.eGet(ea);
-		EFactory eFactory = ea.getEType().getEPackage().getEFactoryInstance();
 		if(val != null) {
 			EDataType eaType = (EDataType) (ea.getEType());
+			EDataTypeCodec codec = resolvedCodecs.get(eaType);
+			if(codec == null) {
+				codec = codecs.resolve(eaType);
+				resolvedCodecs.put(eaType, codec);
+			}
 			retVal.add(ea.getName());
 			if(val instanceof EList<?>) {
 				EList<?> valList = (EList<?>) val;
 				for(Object o: valList) {
-					retVal.add(eFactory.convertToString(eaType, o));
+					retVal.add(codec.convertToString(eaType, o));
 				}
 			} else {
-				retVal.add(eFactory.convertToString(eaType, val));
+				retVal.add(codec.convertToString(eaType, val));
 			}
 		}
 		return retVal;
@@ -144,7 +184,7 @@ public class CSVPrinter {
 	 */
 	protected String printEReferenceValue(EObject eo, EReference er) throws IOException {
 		String retVal = "";
-		Object val = eo.eGet(er);
+		Object val = eo.eGet(er, resolveProxies);
 		if(val instanceof EObject) {
 			EObject eoVal = (EObject) val;
 			retVal = getReference(eo, eoVal);
@@ -166,7 +206,13 @@ public class CSVPrinter {
 		return retVal;
 	}
 
-	private String getReference(EObject eo, EObject eoVal) {
+	/**
+	 * @param eo    the referencing EObject
+	 * @param eoVal the referenced EObject
+	 * @return the id of eoVal if it belongs to the resource of eo, its URI
+	 *         otherwise.
+	 */
+	protected String getReference(EObject eo, EObject eoVal) {
 		String id;
 
 		if(eoVal.eResource().equals(eo.eResource())) {
@@ -16,7 +16,8 @@ import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.Resource.Factory;
 
 /**
- * EMF resource factory providing CSV Resources.
+ * EMF resource factory providing CSV Resources. URIs with the csvz extension get
+ * block compressed CSV Resources.
  */
 public class CSVResourceFactoryImpl implements Factory {
 
@@ -33,6 +34,9 @@ public class CSVResourceFactoryImpl implements Factory {
 	 */
 	@Override
 	public Resource createResource(URI uri) {
+		if(CompressedCSVResourceImpl.FILE_EXTENSION.equals(uri.fileExtension())) {
+			return new CompressedCSVResourceImpl(uri);
+		}
 		return new CSVResourceImpl(uri);
 	}
 
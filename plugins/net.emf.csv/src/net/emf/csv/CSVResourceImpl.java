@@ -17,17 +17,53 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.URIConverter;
 import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
 
 public class CSVResourceImpl extends ResourceImpl {
 
-	protected EObjectIdBiMap eObjectIdBiMap = new EObjectIdBiMap();
+	/**
+	 * Load option. If set to Boolean.TRUE, the id index of the resource is backed
+	 * by concurrent maps, so that getEObjectByID, getURIFragment and
+	 * getIDForEObject may be called from several threads once the resource is
+	 * loaded.
+	 */
+	public static final String OPTION_CONCURRENT_ID_INDEX = "CONCURRENT_ID_INDEX";
+
+	/**
+	 * Load and save option. The EDataTypeCodecRegistry used to convert attribute
+	 * values. Default is EDataTypeCodecRegistry.INSTANCE.
+	 */
+	public static final String OPTION_DATATYPE_CODEC_REGISTRY = "DATATYPE_CODEC_REGISTRY";
+
+	/**
+	 * Load and reload option. If set to Boolean.TRUE, the content is validated by
+	 * a CSVValidator before any object is created. Problems are reported as
+	 * resource errors and warnings, and load fails if there is any error.
+	 */
+	public static final String OPTION_VALIDATE = "VALIDATE";
+
+	/**
+	 * Load and save option. If set to Boolean.TRUE, the hash of each line is
+	 * recorded so that reload may apply only the lines changed since. Once
+	 * enabled by a load or a save, hashes are kept up to date by later saves.
+	 */
+	public static final String OPTION_TRACK_LINE_CHANGES = "TRACK_LINE_CHANGES";
+
+	protected volatile EObjectIdBiMap eObjectIdBiMap = new EObjectIdBiMap();
+
+	/**
+	 * Hash of the last loaded or saved line of each id, used by reload. Null if
+	 * line changes are not tracked.
+	 */
+	protected Map<String, Long> lineHashes = null;
 
 	public CSVResourceImpl() {
 		super();
@@ -49,10 +85,15 @@ public class CSVResourceImpl extends ResourceImpl {
 		if(outputStream instanceof URIConverter.Saveable) {
 			((URIConverter.Saveable) outputStream).saveResource(this);
 		} else {
-			OutputStreamWriter osWriter = new OutputStreamWriter(outputStream, "UTF8");
+			OutputStreamWriter osWriter = new OutputStreamWriter(wrapOutputStream(outputStream), "UTF8");
 			SortedBufferedOutputStreamWriter writer = new SortedBufferedOutputStreamWriter(osWriter);
 
-			CSVPrinter printer = new CSVPrinter(writer, eObjectIdBiMap);
+			CSVPrinter printer = new CSVPrinter(writer, eObjectIdBiMap, getCodecRegistry(options));
+			if(lineHashes != null
+					|| (options != null && Boolean.TRUE.equals(options.get(OPTION_TRACK_LINE_CHANGES)))) {
+				lineHashes = new HashMap<>();
+				printer.setLineHashes(lineHashes);
+			}
 			printer.print(new HashSet<>(this.getContents()));
 			writer.close();
 		}
@@ -76,9 +117,87 @@ public class CSVResourceImpl extends ResourceImpl {
 			((URIConverter.Loadable) inputStream).loadResource(this);
 
 		} else {
-			CSVLoader csvLoader = new CSVLoader(getResourceSet(), eObjectIdBiMap);
-			Collection<EObject> eobjects = csvLoader.load(inputStream);
-			this.getContents().addAll(eobjects);
+			if(Boolean.TRUE.equals(options.get(OPTION_CONCURRENT_ID_INDEX)) && !eObjectIdBiMap.isConcurrent()) {
+				eObjectIdBiMap = new EObjectIdBiMap(true);
+			}
+			CSVLoader csvLoader = createLoader(options);
+			lineHashes = null;
+			if(Boolean.TRUE.equals(options.get(OPTION_TRACK_LINE_CHANGES))) {
+				lineHashes = new HashMap<>();
+				csvLoader.setLineHashes(lineHashes);
+			}
+			try {
+				Collection<EObject> eobjects = csvLoader.load(wrapInputStream(inputStream));
+				this.getContents().addAll(eobjects);
+			} finally {
+				addDiagnostics(csvLoader);
+			}
+		}
+	}
+
+	/**
+	 * Reloads the resource from its URI, applying only the lines that changed
+	 * since the last load or save, which shall have been done with
+	 * OPTION_TRACK_LINE_CHANGES. Unchanged objects keep their identity. If the
+	 * resource is not loaded, it is simply loaded. The changed lines are checked
+	 * first: if they are not valid, reload fails and the resource is left
+	 * unchanged. OPTION_VALIDATE is supported as for load.
+	 * 
+	 * @param options the load options
+	 * @throws IOException
+	 */
+	public void reload(Map<?, ?> options) throws IOException {
+		if(!isLoaded()) {
+			load(options);
+			return;
+		}
+		if(lineHashes == null) {
+			throw new IllegalStateException(
+					"Line changes are not tracked: load or save with OPTION_TRACK_LINE_CHANGES first");
+		}
+		getErrors().clear();
+		getWarnings().clear();
+		try (InputStream inputStream = getURIConverter().createInputStream(getURI(), options)) {
+			CSVLoader csvLoader = createLoader(options);
+			csvLoader.setLineHashes(lineHashes);
+			try {
+				csvLoader.reload(wrapInputStream(inputStream), getContents());
+			} finally {
+				addDiagnostics(csvLoader);
+			}
+		}
+		setModified(false);
+	}
+
+	/**
+	 * @param options load options, possibly null
+	 * @return a CSVLoader filling the id index of the resource, validating the
+	 *         content if required by options
+	 */
+	private CSVLoader createLoader(Map<?, ?> options) {
+		CSVLoader csvLoader = new CSVLoader(getResourceSet(), eObjectIdBiMap, getCodecRegistry(options));
+		if(options != null && Boolean.TRUE.equals(options.get(OPTION_VALIDATE))) {
+			CSVValidator validator = new CSVValidator(getCodecRegistry(options));
+			validator.setLocation(getURI() == null ? null : getURI().toString());
+			csvLoader.setValidator(validator);
+		}
+		return csvLoader;
+	}
+
+	/**
+	 * Reports the problems found by the validator of csvLoader, if any, as errors
+	 * and warnings of the resource.
+	 */
+	private void addDiagnostics(CSVLoader csvLoader) {
+		if(csvLoader.getDiagnostic() != null) {
+			// Diagnostic is Resource.Diagnostic in this scope
+			for(org.eclipse.emf.common.util.Diagnostic d: csvLoader.getDiagnostic().getChildren()) {
+				if(d.getSeverity() == org.eclipse.emf.common.util.Diagnostic.ERROR) {
+					getErrors().add((Resource.Diagnostic) d);
+				} else {
+					getWarnings().add((Resource.Diagnostic) d);
+				}
+			}
 		}
 	}
 
@@ -118,6 +237,35 @@ public class CSVResourceImpl extends ResourceImpl {
 		return eObjectIdBiMap.get(id);
 	}
 
+	/**
+	 * @param inputStream the stream of the resource
+	 * @return the stream of CSV content to parse
+	 * @throws IOException
+	 */
+	protected InputStream wrapInputStream(InputStream inputStream) throws IOException {
+		return inputStream;
+	}
+
+	/**
+	 * @param outputStream the stream of the resource
+	 * @return the stream receiving the CSV content
+	 * @throws IOException
+	 */
+	protected OutputStream wrapOutputStream(OutputStream outputStream) throws IOException {
+		return outputStream;
+	}
+
+	/**
+	 * @param options load or save options, possibly null
+	 * @return the EDataTypeCodecRegistry selected by options
+	 */
+	protected EDataTypeCodecRegistry getCodecRegistry(Map<?, ?> options) {
+		if(options != null && options.get(OPTION_DATATYPE_CODEC_REGISTRY) instanceof EDataTypeCodecRegistry) {
+			return (EDataTypeCodecRegistry) options.get(OPTION_DATATYPE_CODEC_REGISTRY);
+		}
+		return EDataTypeCodecRegistry.INSTANCE;
+	}
+
 	/**
 	 * @param eo
 	 * @return
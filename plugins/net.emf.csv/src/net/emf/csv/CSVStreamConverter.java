@@ -0,0 +1,564 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Pierre Gaufillet.
+ *  This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *     Pierre Gaufillet - initial API and implementation
+ *******************************************************************************/
+
+package net.emf.csv;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+
+/**
+ * Converts CSV models from and to XMI or EMF binary resources without loading
+ * the whole model in memory.
+ *
+ * CSV to XMI/binary: a first pass over the CSV file builds an id index (type
+ * and containment root of each object). Root containment subtrees are then
+ * grouped in segments of at most window objects (a single subtree larger than
+ * the window gets its own segment), the lines of each segment are spilled to a
+ * temporary file, and each segment is materialized, saved in its own resource
+ * and released. Segment files are written MAX_OPEN_FILES at a time, with one
+ * pass over the CSV file for each group. References between segments are saved
+ * as proxies whose URI is the target segment URI with the CSV id as fragment.
+ * XMI segments keep the CSV ids as xmi:id. Binary segments are
+ * CSVBinaryResourceImpl, which keep them in a file aside. The proxies are only
+ * resolved if binary segments are loaded as CSVBinaryResourceImpl too: use the
+ * CSVBinaryResourceImpl.FILE_EXTENSION extension, or register
+ * CSVBinaryResourceFactoryImpl for the extension of the segments. A plain
+ * BinaryResourceImpl only resolves the references to objects having an ID
+ * attribute.
+ *
+ * XMI/binary to CSV: each source resource is loaded, printed by CSVPrinter in a
+ * sorted temporary run and released. The runs are then merged, MAX_OPEN_FILES
+ * at a time, to produce the same sorted CSV file as CSVResourceImpl. References
+ * between sources are printed as ids without resolving the proxies. Binary
+ * sources without their ids file are rejected, unless all their objects have
+ * an ID attribute.
+ *
+ * Other models referenced by the CSV file are loaded in the ResourceSet while a
+ * segment is saved, and are released with it.
+ */
+public class CSVStreamConverter {
+
+	/**
+	 * Supported formats for the non CSV side of the conversion.
+	 */
+	public enum Format {
+		XMI, BINARY
+	}
+
+	/**
+	 * Default maximum number of objects materialized at once.
+	 */
+	public static final int DEFAULT_WINDOW = 100000;
+
+	/**
+	 * Maximum number of temporary files open at once.
+	 */
+	public static final int MAX_OPEN_FILES = 64;
+
+	private ResourceSet rs;
+
+	private int window = DEFAULT_WINDOW;
+
+	private EDataTypeCodecRegistry codecs = EDataTypeCodecRegistry.INSTANCE;
+
+	/**
+	 * Id index entry, built during the first pass.
+	 */
+	private static class IdEntry {
+		String type;
+		String parent;
+		String root;
+		int segment;
+	}
+
+	public CSVStreamConverter() {
+		this(new ResourceSetImpl());
+	}
+
+	/**
+	 * @param rs the ResourceSet providing the URIConverter and resolving the
+	 *           references to other models.
+	 */
+	public CSVStreamConverter(ResourceSet rs) {
+		this.rs = rs;
+	}
+
+	/**
+	 * @param window the maximum number of objects materialized at once. Root
+	 *               containment subtrees are never split.
+	 */
+	public void setWindow(int window) {
+		if(window < 1) {
+			throw new IllegalArgumentException("window shall be positive");
+		}
+		this.window = window;
+	}
+
+	/**
+	 * @param codecs the EDataTypeCodecRegistry used to convert attribute values.
+	 */
+	public void setCodecRegistry(EDataTypeCodecRegistry codecs) {
+		this.codecs = codecs;
+	}
+
+	/**
+	 * @param csvURI    the CSV model to convert
+	 * @param targetURI the URI of the first segment. Next segments are created
+	 *                  aside, suffixed by _1, _2, ...
+	 * @param format    the format of the segments
+	 * @return the URIs of the created segments
+	 * @throws IOException
+	 */
+	public List<URI> convertFromCSV(URI csvURI, URI targetURI, Format format) throws IOException {
+		Map<String, IdEntry> index = buildIndex(csvURI);
+		int segmentCount = assignSegments(index);
+
+		List<URI> segmentURIs = new ArrayList<>();
+		for(int i = 0; i < segmentCount; i++) {
+			segmentURIs.add(getSegmentURI(targetURI, i));
+		}
+
+		List<File> segmentFiles = splitSegments(csvURI, index, segmentCount);
+		try {
+			for(int i = 0; i < segmentCount; i++) {
+				saveSegment(segmentFiles.get(i), segmentURIs.get(i), format, index, segmentURIs);
+			}
+		} finally {
+			for(File f: segmentFiles) {
+				f.delete();
+			}
+		}
+		return segmentURIs;
+	}
+
+	/**
+	 * @param sourceURIs the resources to convert, typically the segments produced
+	 *                   by convertFromCSV
+	 * @param format     the format of the sources
+	 * @param csvURI     the CSV file to produce
+	 * @throws IOException
+	 */
+	public void convertToCSV(List<URI> sourceURIs, Format format, URI csvURI) throws IOException {
+		Set<URI> sources = new HashSet<>(sourceURIs);
+		List<File> runs = new ArrayList<>();
+		try {
+			for(URI sourceURI: sourceURIs) {
+				runs.add(printRun(sourceURI, format, sources));
+			}
+			mergeRuns(runs, csvURI);
+		} finally {
+			for(File f: runs) {
+				f.delete();
+			}
+		}
+	}
+
+	/**
+	 * First pass: records the type and the container of each id.
+	 */
+	private Map<String, IdEntry> buildIndex(URI csvURI) throws IOException {
+		Map<String, IdEntry> index = new LinkedHashMap<>();
+		// Type URIs and EClasses are shared by many lines
+		Map<String, String> types = new HashMap<>();
+		Map<String, EClass> classes = new HashMap<>();
+
+		try (InputStream is = rs.getURIConverter().createInputStream(csvURI);
+				CSVParser parser = CSVParser.parse(is, StandardCharsets.UTF_8, getCSVFormat())) {
+			for(CSVRecord r: parser) {
+				Iterator<String> i = r.iterator();
+				String eType = types.computeIfAbsent(i.next(), t -> t);
+				String id = i.next();
+				getEntry(index, id).type = eType;
+
+				EClass clazz = classes.computeIfAbsent(eType, t -> {
+					EClassifier classifier = CSVLoader.getEClassifier(t);
+					return classifier instanceof EClass ? (EClass) classifier : null;
+				});
+				if(clazz == null) {
+					throw new IOException("Unknown type " + eType + " at line " + r.getRecordNumber());
+				}
+				while(i.hasNext()) {
+					String name = i.next();
+					String value = i.next();
+					EStructuralFeature esf = clazz.getEStructuralFeature(name);
+					if(esf instanceof EReference && ((EReference) esf).isContainment()) {
+						for(String child: value.split(",")) {
+							getEntry(index, child).parent = id;
+						}
+					}
+				}
+			}
+		}
+		return index;
+	}
+
+	private IdEntry getEntry(Map<String, IdEntry> index, String id) {
+		IdEntry entry = index.get(id);
+		if(entry == null) {
+			entry = new IdEntry();
+			index.put(id, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Groups root containment subtrees in segments of at most window objects.
+	 *
+	 * @return the number of segments
+	 */
+	private int assignSegments(Map<String, IdEntry> index) {
+		// Ids referenced as children but without line cannot be materialized
+		index.values().removeIf(e -> e.type == null);
+
+		Map<String, Integer> rootSizes = new LinkedHashMap<>();
+		for(Map.Entry<String, IdEntry> e: index.entrySet()) {
+			String root = getRoot(index, e.getKey());
+			rootSizes.merge(root, 1, Integer::sum);
+		}
+
+		Map<String, Integer> rootSegments = new HashMap<>();
+		int segment = 0;
+		int size = 0;
+		for(Map.Entry<String, Integer> e: rootSizes.entrySet()) {
+			if(size > 0 && size + e.getValue() > window) {
+				segment++;
+				size = 0;
+			}
+			rootSegments.put(e.getKey(), segment);
+			size += e.getValue();
+		}
+
+		for(IdEntry entry: index.values()) {
+			entry.segment = rootSegments.get(entry.root);
+			entry.parent = null;
+			entry.root = null;
+		}
+		return rootSizes.isEmpty() ? 0 : segment + 1;
+	}
+
+	private String getRoot(Map<String, IdEntry> index, String id) {
+		List<IdEntry> path = new ArrayList<>();
+		String current = id;
+		IdEntry entry = index.get(current);
+		while(entry.root == null && entry.parent != null && index.containsKey(entry.parent)
+				&& path.size() <= index.size()) {
+			path.add(entry);
+			current = entry.parent;
+			entry = index.get(current);
+		}
+		String root = entry.root != null ? entry.root : current;
+		entry.root = root;
+		for(IdEntry e: path) {
+			e.root = root;
+		}
+		return root;
+	}
+
+	/**
+	 * Second pass: copies the lines of each segment in a temporary file.
+	 */
+	private List<File> splitSegments(URI csvURI, Map<String, IdEntry> index, int segmentCount) throws IOException {
+		List<File> files = new ArrayList<>();
+		try {
+			// One pass over the CSV file per group of MAX_OPEN_FILES segments
+			for(int first = 0; first < segmentCount; first += MAX_OPEN_FILES) {
+				int last = Math.min(first + MAX_OPEN_FILES, segmentCount);
+				List<org.apache.commons.csv.CSVPrinter> printers = new ArrayList<>();
+				try {
+					for(int i = first; i < last; i++) {
+						File f = File.createTempFile("emfcsv", ".csv");
+						files.add(f);
+						Writer w = new BufferedWriter(
+								new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8));
+						printers.add(getCSVFormat().print(w));
+					}
+					try (InputStream is = rs.getURIConverter().createInputStream(csvURI);
+							CSVParser parser = CSVParser.parse(is, StandardCharsets.UTF_8, getCSVFormat())) {
+						for(CSVRecord r: parser) {
+							IdEntry entry = index.get(r.get(1));
+							if(entry != null && entry.segment >= first && entry.segment < last) {
+								printers.get(entry.segment - first).printRecord(r);
+							}
+						}
+					}
+				} finally {
+					for(org.apache.commons.csv.CSVPrinter p: printers) {
+						p.close();
+					}
+				}
+			}
+		} catch(IOException | RuntimeException e) {
+			for(File f: files) {
+				f.delete();
+			}
+			throw e;
+		}
+		return files;
+	}
+
+	/**
+	 * Third pass: materializes one segment, saves and releases it.
+	 */
+	private void saveSegment(File segmentFile, URI segmentURI, Format format, Map<String, IdEntry> index,
+			List<URI> segmentURIs) throws IOException {
+		EObjectIdBiMap map = new EObjectIdBiMap();
+		Map<String, EClass> classes = new HashMap<>();
+		CSVLoader loader = new CSVLoader(rs, map, codecs) {
+
+			@Override
+			protected EObject getEObject(String ref) {
+				IdEntry entry = map.containsKey(ref) ? null : index.get(ref);
+				if(entry != null) {
+					// Object of another segment, or dangling reference
+					if(entry.type == null) {
+						return null;
+					}
+					EClass eClass = classes.computeIfAbsent(entry.type,
+							t -> (EClass) CSVLoader.getEClassifier(t));
+					InternalEObject proxy = (InternalEObject) EcoreUtil.create(eClass);
+					proxy.eSetProxyURI(segmentURIs.get(entry.segment).appendFragment(ref));
+					return proxy;
+				}
+				return super.getEObject(ref);
+			}
+		};
+
+		// Resources of other models loaded to resolve references
+		Set<Resource> loaded = new HashSet<>(rs.getResources());
+		Resource res = createResource(segmentURI, format);
+		try {
+			try (InputStream is = new FileInputStream(segmentFile)) {
+				res.getContents().addAll(loader.load(is));
+			}
+			for(Iterator<EObject> i = res.getAllContents(); i.hasNext();) {
+				EObject eo = i.next();
+				if(res instanceof XMLResource) {
+					((XMLResource) res).setID(eo, map.get(eo));
+				} else if(res instanceof CSVBinaryResourceImpl) {
+					((CSVBinaryResourceImpl) res).setID(eo, map.get(eo));
+				}
+			}
+			res.save(null);
+		} finally {
+			for(Resource r: new ArrayList<>(rs.getResources())) {
+				if(!loaded.contains(r)) {
+					r.unload();
+					rs.getResources().remove(r);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Loads a source resource and prints it in a sorted temporary run.
+	 */
+	private File printRun(URI sourceURI, Format format, Set<URI> sources) throws IOException {
+		File run = File.createTempFile("emfcsv", ".csv");
+		Resource res = createResource(sourceURI, format);
+		try {
+			res.load(null);
+			EObjectIdBiMap map = new EObjectIdBiMap();
+			for(Iterator<EObject> i = res.getAllContents(); i.hasNext();) {
+				EObject eo = i.next();
+				String id = null;
+				if(res instanceof XMLResource) {
+					id = ((XMLResource) res).getID(eo);
+				} else if(res instanceof CSVBinaryResourceImpl) {
+					id = ((CSVBinaryResourceImpl) res).getID(eo);
+					if(id == null && eo.eClass().getEIDAttribute() == null) {
+						throw new IOException("Ids of " + sourceURI + " cannot be restored: missing "
+								+ sourceURI.appendFileExtension(CSVBinaryResourceImpl.IDS_FILE_EXTENSION));
+					}
+				}
+				if(id != null && EcoreUtil.getID(eo) == null) {
+					map.put(id, eo);
+				}
+			}
+
+			Writer osWriter = new OutputStreamWriter(new FileOutputStream(run), StandardCharsets.UTF_8);
+			try (SortedBufferedOutputStreamWriter writer = new SortedBufferedOutputStreamWriter(osWriter)) {
+				CSVPrinter printer = new CSVPrinter(writer, map, codecs) {
+
+					@Override
+					protected String getReference(EObject eo, EObject eoVal) {
+						if(eoVal.eIsProxy()) {
+							URI uri = ((InternalEObject) eoVal).eProxyURI();
+							String fragment = uri.fragment();
+							// Id based reference to another source
+							if(fragment != null && !fragment.startsWith("/")
+									&& sources.contains(uri.trimFragment())) {
+								return fragment;
+							}
+							return uri.toString();
+						}
+						return super.getReference(eo, eoVal);
+					}
+				};
+				printer.setResolveProxies(false);
+				printer.print(new LinkedHashSet<>(res.getContents()));
+			}
+		} catch(IOException | RuntimeException e) {
+			run.delete();
+			throw e;
+		} finally {
+			res.unload();
+			rs.getResources().remove(res);
+		}
+		return run;
+	}
+
+	/**
+	 * Merges sorted runs into the target CSV file, keeping the String order of
+	 * SortedBufferedOutputStreamWriter.
+	 */
+	private void mergeRuns(List<File> runs, URI csvURI) throws IOException {
+		List<File> merged = new ArrayList<>();
+		try {
+			// Intermediate merges of MAX_OPEN_FILES runs at most
+			while(runs.size() > MAX_OPEN_FILES) {
+				List<File> next = new ArrayList<>();
+				for(int i = 0; i < runs.size(); i += MAX_OPEN_FILES) {
+					File f = File.createTempFile("emfcsv", ".csv");
+					merged.add(f);
+					next.add(f);
+					try (Writer out = new BufferedWriter(
+							new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8))) {
+						mergeRuns(runs.subList(i, Math.min(i + MAX_OPEN_FILES, runs.size())), out);
+					}
+				}
+				runs = next;
+			}
+			try (OutputStream os = rs.getURIConverter().createOutputStream(csvURI);
+					Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8))) {
+				mergeRuns(runs, out);
+			}
+		} finally {
+			for(File f: merged) {
+				f.delete();
+			}
+		}
+	}
+
+	private void mergeRuns(List<File> runs, Writer out) throws IOException {
+		List<Reader> readers = new ArrayList<>();
+		try {
+			PriorityQueue<String[]> heads = new PriorityQueue<>((a, b) -> a[0].compareTo(b[0]));
+			for(int i = 0; i < runs.size(); i++) {
+				Reader r = new BufferedReader(
+						new InputStreamReader(new FileInputStream(runs.get(i)), StandardCharsets.UTF_8));
+				readers.add(r);
+				String line = readLine(r);
+				if(line != null) {
+					heads.add(new String[] { line, Integer.toString(i) });
+				}
+			}
+			while(!heads.isEmpty()) {
+				String[] head = heads.poll();
+				out.write(head[0]);
+				out.write('\n');
+				int i = Integer.parseInt(head[1]);
+				String line = readLine(readers.get(i));
+				if(line != null) {
+					heads.add(new String[] { line, head[1] });
+				}
+			}
+		} finally {
+			for(Reader r: readers) {
+				r.close();
+			}
+		}
+	}
+
+	/**
+	 * @return the next line without its '\n' terminator, or null at the end of
+	 *         the stream. Unlike BufferedReader.readLine, '\r' is kept.
+	 */
+	private String readLine(Reader r) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		int c;
+		while((c = r.read()) != -1) {
+			if(c == '\n') {
+				return sb.toString();
+			}
+			sb.append((char) c);
+		}
+		return sb.length() > 0 ? sb.toString() : null;
+	}
+
+	/**
+	 * @return the URI of the given segment, derived from the target URI.
+	 */
+	protected URI getSegmentURI(URI targetURI, int segment) {
+		if(segment == 0) {
+			return targetURI;
+		}
+		String extension = targetURI.fileExtension();
+		URI base = extension == null ? targetURI : targetURI.trimFileExtension();
+		URI uri = base.trimSegments(1).appendSegment(base.lastSegment() + "_" + segment);
+		return extension == null ? uri : uri.appendFileExtension(extension);
+	}
+
+	/**
+	 * @return a new resource of the given format, added to the ResourceSet.
+	 */
+	protected Resource createResource(URI uri, Format format) {
+		Resource res;
+		if(format == Format.BINARY) {
+			res = new CSVBinaryResourceImpl(uri);
+		} else {
+			res = new XMIResourceImpl(uri);
+		}
+		rs.getResources().add(res);
+		return res;
+	}
+
+	private CSVFormat getCSVFormat() {
+		return CSVFormat.EXCEL.withDelimiter(';');
+	}
+}
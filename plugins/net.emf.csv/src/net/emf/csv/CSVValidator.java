@@ -0,0 +1,417 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Pierre Gaufillet.
+ *  This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *     Pierre Gaufillet - initial API and implementation
+ *******************************************************************************/
+
+package net.emf.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.eclipse.emf.common.util.BasicDiagnostic;
+import org.eclipse.emf.common.util.Diagnostic;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+/**
+ * Streaming validator of CSV resources. It checks, without creating any
+ * EObject, that type URIs designate concrete EClasses, that ids are unique,
+ * that feature names exist in the EClass, that attribute values can be parsed
+ * and that references target existing ids. Records are checked in parallel by
+ * chunks; references to ids not yet seen are checked once the whole file has
+ * been read. References containing a '#' are considered as URIs to other
+ * resources and are not checked.
+ *
+ * Ids are only kept as 64 bits hashes. Two distinct ids with the same hash
+ * (probability about n^2/2^65 for n ids) would be reported as duplicates, or
+ * hide a dangling reference.
+ */
+public class CSVValidator {
+
+	public static final String DIAGNOSTIC_SOURCE = "net.emf.csv";
+
+	public static final int MALFORMED_LINE = 1;
+
+	public static final int UNKNOWN_TYPE = 2;
+
+	public static final int DUPLICATE_ID = 3;
+
+	public static final int UNKNOWN_FEATURE = 4;
+
+	public static final int INVALID_VALUE = 5;
+
+	public static final int DANGLING_REFERENCE = 6;
+
+	public static final int MULTIPLE_VALUES = 7;
+
+	public static final int UNEXPECTED_ERROR = 8;
+
+	/**
+	 * Default number of records per chunk.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+	/**
+	 * Maximum number of chunks being checked at the same time.
+	 */
+	private final int maxPending = Runtime.getRuntime().availableProcessors() * 2;
+
+	private EDataTypeCodecRegistry codecs = EDataTypeCodecRegistry.INSTANCE;
+
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private String location = null;
+
+	/**
+	 * Resolved type URIs. Type resolution is serialized since it may update the
+	 * EPackage registry and the Ecore caches.
+	 */
+	private Map<String, Optional<EClass>> classes = new ConcurrentHashMap<>();
+
+	/**
+	 * Reference found in a chunk, checked when the chunk is collected.
+	 */
+	private static class Reference {
+		final String target;
+		final int line;
+		final String feature;
+
+		Reference(String target, int line, String feature) {
+			this.target = target;
+			this.line = line;
+			this.feature = feature;
+		}
+	}
+
+	/**
+	 * References to an id not yet seen.
+	 */
+	private static class PendingTarget {
+		int[] lines = new int[1];
+		String[] features = new String[1];
+		int size = 0;
+
+		void add(int line, String feature) {
+			if(size == lines.length) {
+				lines = Arrays.copyOf(lines, size * 2);
+				features = Arrays.copyOf(features, size * 2);
+			}
+			lines[size] = line;
+			features[size] = feature;
+			size++;
+		}
+	}
+
+	/**
+	 * Open addressing set of 64 bits hashes.
+	 */
+	private static class LongHashSet {
+		private long[] table = new long[1024];
+		private int size = 0;
+		// 0 marks the free slots
+		private boolean containsZero = false;
+
+		boolean add(long h) {
+			if(h == 0) {
+				boolean added = !containsZero;
+				containsZero = true;
+				return added;
+			}
+			if(2 * (size + 1) > table.length) {
+				long[] old = table;
+				table = new long[old.length * 2];
+				size = 0;
+				for(long o: old) {
+					if(o != 0) {
+						add(o);
+					}
+				}
+			}
+			int mask = table.length - 1;
+			for(int i = (int) h & mask;; i = (i + 1) & mask) {
+				if(table[i] == 0) {
+					table[i] = h;
+					size++;
+					return true;
+				} else if(table[i] == h) {
+					return false;
+				}
+			}
+		}
+
+		boolean contains(long h) {
+			if(h == 0) {
+				return containsZero;
+			}
+			int mask = table.length - 1;
+			for(int i = (int) h & mask;; i = (i + 1) & mask) {
+				if(table[i] == 0) {
+					return false;
+				} else if(table[i] == h) {
+					return true;
+				}
+			}
+		}
+	}
+
+	public CSVValidator() {
+		super();
+	}
+
+	public CSVValidator(EDataTypeCodecRegistry codecs) {
+		this.codecs = codecs;
+	}
+
+	/**
+	 * @param chunkSize the number of records checked by a single task
+	 */
+	public void setChunkSize(int chunkSize) {
+		if(chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize shall be positive");
+		}
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @param location the location of the validated resource, reported in the
+	 *                 diagnostics.
+	 */
+	public void setLocation(String location) {
+		this.location = location;
+	}
+
+	/**
+	 * @param inputStream the CSV content to validate
+	 * @return a Diagnostic whose children are the problems found, sorted by line
+	 * @throws IOException
+	 */
+	public Diagnostic validate(InputStream inputStream) throws IOException {
+		CSVFormat fmt = CSVFormat.EXCEL.withDelimiter(';');
+		try (CSVParser parser = CSVParser.parse(inputStream, StandardCharsets.UTF_8, fmt)) {
+			return validate(parser);
+		}
+	}
+
+	/**
+	 * @param records the CSV records to validate
+	 * @return a Diagnostic whose children are the problems found, sorted by line
+	 */
+	public Diagnostic validate(Iterable<CSVRecord> records) {
+		return validate(records, Collections.<String>emptySet());
+	}
+
+	/**
+	 * Validates a part of a CSV file.
+	 *
+	 * @param records  the CSV records to validate
+	 * @param knownIds ids defined by other lines, which may be referenced by the
+	 *                 records. Only the records are checked for duplicates.
+	 * @return a Diagnostic whose children are the problems found, sorted by line
+	 */
+	public Diagnostic validate(Iterable<CSVRecord> records, Set<String> knownIds) {
+		// Ids read so far and references to ids not yet seen. Both are only
+		// accessed by this thread.
+		LongHashSet ids = new LongHashSet();
+		Map<String, PendingTarget> pendingTargets = new HashMap<>();
+		List<Diagnostic> diagnostics = new ArrayList<>();
+		Deque<CompletableFuture<List<Object>>> pending = new ArrayDeque<>();
+
+		List<CSVRecord> chunk = new ArrayList<>(chunkSize);
+		for(CSVRecord r: records) {
+			// Ids are recorded in order so that duplicates are reported
+			// deterministically
+			if(r.size() >= 2) {
+				if(!ids.add(hash(r.get(1)))) {
+					diagnostics.add(error(DUPLICATE_ID, r, "Duplicate id '" + r.get(1) + "'", r.get(1)));
+				} else if(!pendingTargets.isEmpty()) {
+					pendingTargets.remove(r.get(1));
+				}
+			}
+			chunk.add(r);
+			if(chunk.size() == chunkSize) {
+				List<CSVRecord> c = chunk;
+				pending.add(CompletableFuture.supplyAsync(() -> validateChunk(c)));
+				chunk = new ArrayList<>(chunkSize);
+				while(pending.size() > maxPending) {
+					collect(pending.poll().join(), diagnostics, ids, knownIds, pendingTargets);
+				}
+			}
+		}
+		if(!chunk.isEmpty()) {
+			List<CSVRecord> c = chunk;
+			pending.add(CompletableFuture.supplyAsync(() -> validateChunk(c)));
+		}
+		while(!pending.isEmpty()) {
+			collect(pending.poll().join(), diagnostics, ids, knownIds, pendingTargets);
+		}
+
+		// All ids are now known: remaining targets do not exist
+		for(Map.Entry<String, PendingTarget> e: pendingTargets.entrySet()) {
+			PendingTarget t = e.getValue();
+			for(int i = 0; i < t.size; i++) {
+				diagnostics.add(new CSVDiagnostic(Diagnostic.ERROR, DANGLING_REFERENCE,
+						"Dangling reference '" + e.getKey() + "' in feature '" + t.features[i] + "' at line "
+								+ t.lines[i],
+						location, t.lines[i], null, t.features[i]));
+			}
+		}
+
+		Collections.sort(diagnostics, Comparator.comparingInt(d -> ((CSVDiagnostic) d).getLine()));
+		BasicDiagnostic result = new BasicDiagnostic(DIAGNOSTIC_SOURCE, 0,
+				diagnostics.size() + " problem(s) found in " + (location == null ? "CSV content" : location), null);
+		diagnostics.forEach(result::add);
+		return result;
+	}
+
+	private void collect(List<Object> results, List<Diagnostic> diagnostics, LongHashSet ids,
+			Set<String> knownIds, Map<String, PendingTarget> pendingTargets) {
+		for(Object o: results) {
+			if(o instanceof Diagnostic) {
+				diagnostics.add((Diagnostic) o);
+			} else {
+				Reference ref = (Reference) o;
+				if(ref.target.indexOf('#') < 0 && !ids.contains(hash(ref.target))
+						&& !knownIds.contains(ref.target)) {
+					pendingTargets.computeIfAbsent(ref.target, t -> new PendingTarget()).add(ref.line, ref.feature);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return a 64 bits hash of id (FNV-1a, with a final mix so that the low bits
+	 *         can index a table)
+	 */
+	private static long hash(String id) {
+		long h = 0xcbf29ce484222325L;
+		for(int i = 0; i < id.length(); i++) {
+			h ^= id.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9f34a65ca63L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * @return the diagnostics and references of the chunk
+	 */
+	private List<Object> validateChunk(List<CSVRecord> chunk) {
+		List<Object> results = new ArrayList<>();
+		for(CSVRecord r: chunk) {
+			try {
+				validateRecord(r, results);
+			} catch(RuntimeException e) {
+				// Report the problem on this record without aborting the whole validation
+				results.add(error(UNEXPECTED_ERROR, r, "Unexpected error: " + e, r.size() >= 2 ? r.get(1) : null));
+			}
+		}
+		return results;
+	}
+
+	private void validateRecord(CSVRecord r, List<Object> results) {
+		if(r.size() < 2 || r.size() % 2 != 0) {
+			results.add(error(MALFORMED_LINE, r, "Malformed line: type, id and name/value pairs expected", null));
+			return;
+		}
+		Iterator<String> i = r.iterator();
+		String eType = i.next();
+		String id = i.next();
+
+		EClass clazz = getEClass(eType);
+		if(clazz == null) {
+			results.add(error(UNKNOWN_TYPE, r, "Unknown or abstract type '" + eType + "'", id));
+			return;
+		}
+
+		while(i.hasNext()) {
+			String name = i.next();
+			String value = i.next();
+			EStructuralFeature esf = clazz.getEStructuralFeature(name);
+			if(esf == null) {
+				results.add(error(UNKNOWN_FEATURE, r, "Unknown feature '" + name + "' for type '" + eType + "'", id,
+						name));
+				continue;
+			}
+			if(esf instanceof EAttribute) {
+				EDataType dataType = ((EAttribute) esf).getEAttributeType();
+				for(String v: esf.isMany() ? value.split(",") : new String[] { value }) {
+					try {
+						codecs.createFromString(dataType, v);
+					} catch(RuntimeException e) {
+						results.add(error(INVALID_VALUE, r,
+								"Invalid value '" + v + "' for feature '" + name + "' of type '" + dataType.getName()
+										+ "'",
+								id, name));
+					}
+				}
+			} else {
+				String[] values = value.split(",");
+				if(!esf.isMany() && values.length > 1) {
+					results.add(new CSVDiagnostic(Diagnostic.WARNING, MULTIPLE_VALUES,
+							"Several targets for single valued reference '" + name + "' at line " + r.getRecordNumber(),
+							location, (int) r.getRecordNumber(), id, name));
+				}
+				for(String target: values) {
+					// Feature names of the EClass are shared by all the references
+					results.add(new Reference(target, (int) r.getRecordNumber(), esf.getName()));
+				}
+			}
+		}
+	}
+
+	private EClass getEClass(String eType) {
+		Optional<EClass> clazz = classes.get(eType);
+		if(clazz == null) {
+			synchronized(classes) {
+				clazz = classes.computeIfAbsent(eType, t -> {
+					EClassifier classifier = CSVLoader.getEClassifier(t);
+					if(classifier instanceof EClass && !((EClass) classifier).isAbstract()) {
+						EClass c = (EClass) classifier;
+						// Build the lazy feature caches before concurrent use
+						c.getEStructuralFeature("");
+						return Optional.of(c);
+					}
+					return Optional.empty();
+				});
+			}
+		}
+		return clazz.orElse(null);
+	}
+
+	private CSVDiagnostic error(int code, CSVRecord r, String message, String id, String... feature) {
+		int line = (int) r.getRecordNumber();
+		Object[] data = feature.length > 0 ? new Object[] { id, feature[0] } : new Object[] { id };
+		return new CSVDiagnostic(Diagnostic.ERROR, code, message + " at line " + line, location, line, data);
+	}
+}
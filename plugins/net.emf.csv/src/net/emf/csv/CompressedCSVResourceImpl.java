@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Pierre Gaufillet.
+ *  This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *     Pierre Gaufillet - initial API and implementation
+ *******************************************************************************/
+
+package net.emf.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.eclipse.emf.common.util.URI;
+
+/**
+ * CSV Resource stored as independently deflated blocks (see
+ * BlockDeflaterOutputStream). Blocks are compressed in parallel on save and
+ * decompressed in parallel ahead of the parser on load.
+ */
+public class CompressedCSVResourceImpl extends CSVResourceImpl {
+
+	/**
+	 * File extension of block compressed CSV resources.
+	 */
+	public static final String FILE_EXTENSION = "csvz";
+
+	public CompressedCSVResourceImpl() {
+		super();
+	}
+
+	public CompressedCSVResourceImpl(URI uri) {
+		super(uri);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.emf.csv.CSVResourceImpl#wrapInputStream(java.io.InputStream)
+	 */
+	@Override
+	protected InputStream wrapInputStream(InputStream inputStream) throws IOException {
+		return new BlockInflaterInputStream(inputStream);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see net.emf.csv.CSVResourceImpl#wrapOutputStream(java.io.OutputStream)
+	 */
+	@Override
+	protected OutputStream wrapOutputStream(OutputStream outputStream) throws IOException {
+		return new BlockDeflaterOutputStream(outputStream);
+	}
+}
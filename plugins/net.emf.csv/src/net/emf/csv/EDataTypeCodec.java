@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Pierre Gaufillet.
+ *  This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *     Pierre Gaufillet - initial API and implementation
+ *******************************************************************************/
+
+package net.emf.csv;
+
+import org.eclipse.emf.ecore.EDataType;
+
+/**
+ * Converts the values of an EDataType from and to their CSV string
+ * representation. It replaces the corresponding EFactory methods when it is
+ * registered in an {@link EDataTypeCodecRegistry}. The produced strings
+ * shall be the same as the ones of the EFactory of the EDataType so that files
+ * remain compatible.
+ */
+public interface EDataTypeCodec {
+
+	/**
+	 * @param eDataType the EDataType of the value
+	 * @param literal   the string representation of the value
+	 * @return the value represented by literal
+	 */
+	Object createFromString(EDataType eDataType, String literal);
+
+	/**
+	 * @param eDataType the EDataType of the value
+	 * @param value     the value to convert
+	 * @return the string representation of value
+	 */
+	String convertToString(EDataType eDataType, Object value);
+}
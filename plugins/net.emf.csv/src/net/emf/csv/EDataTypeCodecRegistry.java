@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Pierre Gaufillet.
+ *  This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * Contributors:
+ *     Pierre Gaufillet - initial API and implementation
+ *******************************************************************************/
+
+package net.emf.csv;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.eclipse.emf.common.util.WrappedException;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EEnum;
+import org.eclipse.emf.ecore.EEnumLiteral;
+import org.eclipse.emf.ecore.EFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+
+/**
+ * Registry of the EDataTypeCodecs used to load and save attribute values. Codecs
+ * are keyed by EDataType. Built-in codecs are provided for the Ecore primitive
+ * types, their wrappers, EDate, EBigInteger, EBigDecimal and for all EEnums. If
+ * no codec is available for an EDataType, the EFactory of its EPackage is used.
+ *
+ * The built-in codecs perform the same conversions as EcoreFactory and do not
+ * allocate less; only EDate avoids the lock of EcoreFactory. The registry is an
+ * extension point to replace the conversion of specific EDataTypes, for
+ * instance by cheaper or interning codecs.
+ */
+public class EDataTypeCodecRegistry {
+
+	/**
+	 * Shared registry, used when no specific registry is provided.
+	 */
+	public static final EDataTypeCodecRegistry INSTANCE = new EDataTypeCodecRegistry();
+
+	/**
+	 * Codec used for the EEnums without a specific codec.
+	 */
+	private static final EDataTypeCodec EENUM_CODEC = new EEnumCodec();
+
+	private final Map<EDataType, EDataTypeCodec> codecs = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a registry with the built-in codecs.
+	 */
+	public EDataTypeCodecRegistry() {
+		EcorePackage ecore = EcorePackage.eINSTANCE;
+
+		EDataTypeCodec intCodec = new ToStringCodec(Integer::valueOf);
+		register(ecore.getEInt(), intCodec);
+		register(ecore.getEIntegerObject(), intCodec);
+		EDataTypeCodec longCodec = new ToStringCodec(Long::valueOf);
+		register(ecore.getELong(), longCodec);
+		register(ecore.getELongObject(), longCodec);
+		EDataTypeCodec shortCodec = new ToStringCodec(Short::valueOf);
+		register(ecore.getEShort(), shortCodec);
+		register(ecore.getEShortObject(), shortCodec);
+		EDataTypeCodec byteCodec = new ToStringCodec(Byte::valueOf);
+		register(ecore.getEByte(), byteCodec);
+		register(ecore.getEByteObject(), byteCodec);
+		EDataTypeCodec doubleCodec = new ToStringCodec(Double::valueOf);
+		register(ecore.getEDouble(), doubleCodec);
+		register(ecore.getEDoubleObject(), doubleCodec);
+		EDataTypeCodec floatCodec = new ToStringCodec(Float::valueOf);
+		register(ecore.getEFloat(), floatCodec);
+		register(ecore.getEFloatObject(), floatCodec);
+		EDataTypeCodec booleanCodec = new ToStringCodec(EDataTypeCodecRegistry::booleanValueOf);
+		register(ecore.getEBoolean(), booleanCodec);
+		register(ecore.getEBooleanObject(), booleanCodec);
+		register(ecore.getEString(), new ToStringCodec(s -> s));
+		register(ecore.getEBigInteger(), new ToStringCodec(BigInteger::new));
+		register(ecore.getEBigDecimal(), new ToStringCodec(BigDecimal::new));
+		register(ecore.getEDate(), new EDateCodec());
+	}
+
+	/**
+	 * @param eDataType the EDataType handled by codec
+	 * @param codec     the codec to use for eDataType
+	 * @return the codec previously registered for eDataType, or null
+	 */
+	public EDataTypeCodec register(EDataType eDataType, EDataTypeCodec codec) {
+		return codecs.put(eDataType, codec);
+	}
+
+	/**
+	 * @param eDataType the EDataType whose codec shall be removed
+	 * @return the codec previously registered for eDataType, or null
+	 */
+	public EDataTypeCodec unregister(EDataType eDataType) {
+		return codecs.remove(eDataType);
+	}
+
+	/**
+	 * @param eDataType
+	 * @return the codec to use for eDataType, or null if its EFactory shall be
+	 *         used.
+	 */
+	public EDataTypeCodec getCodec(EDataType eDataType) {
+		EDataTypeCodec codec = codecs.get(eDataType);
+		if(codec == null && eDataType instanceof EEnum) {
+			codec = EENUM_CODEC;
+		}
+		return codec;
+	}
+
+	/**
+	 * @param eDataType
+	 * @return the codec to use for eDataType, delegating to its EFactory if no
+	 *         codec is registered. Callers converting many values should keep it
+	 *         rather than look it up for each value.
+	 */
+	public EDataTypeCodec resolve(EDataType eDataType) {
+		EDataTypeCodec codec = getCodec(eDataType);
+		return codec != null ? codec : new EFactoryCodec(eDataType.getEPackage().getEFactoryInstance());
+	}
+
+	/**
+	 * @param eDataType the EDataType of the value
+	 * @param literal   the string representation of the value
+	 * @return the value represented by literal
+	 */
+	public Object createFromString(EDataType eDataType, String literal) {
+		EDataTypeCodec codec = getCodec(eDataType);
+		if(codec != null) {
+			return codec.createFromString(eDataType, literal);
+		}
+		EFactory eFactory = eDataType.getEPackage().getEFactoryInstance();
+		return eFactory.createFromString(eDataType, literal);
+	}
+
+	/**
+	 * @param eDataType the EDataType of the value
+	 * @param value     the value to convert
+	 * @return the string representation of value
+	 */
+	public String convertToString(EDataType eDataType, Object value) {
+		EDataTypeCodec codec = getCodec(eDataType);
+		if(codec != null) {
+			return codec.convertToString(eDataType, value);
+		}
+		EFactory eFactory = eDataType.getEPackage().getEFactoryInstance();
+		return eFactory.convertToString(eDataType, value);
+	}
+
+	/**
+	 * Same behavior as EcoreFactory boolean conversion.
+	 */
+	private static Boolean booleanValueOf(String literal) {
+		if("true".equalsIgnoreCase(literal)) {
+			return Boolean.TRUE;
+		} else if("false".equalsIgnoreCase(literal)) {
+			return Boolean.FALSE;
+		} else {
+			throw new IllegalArgumentException("Expecting true or false");
+		}
+	}
+
+	/**
+	 * Codec delegating to an EFactory.
+	 */
+	private static class EFactoryCodec implements EDataTypeCodec {
+
+		private final EFactory eFactory;
+
+		EFactoryCodec(EFactory eFactory) {
+			this.eFactory = eFactory;
+		}
+
+		@Override
+		public Object createFromString(EDataType eDataType, String literal) {
+			return eFactory.createFromString(eDataType, literal);
+		}
+
+		@Override
+		public String convertToString(EDataType eDataType, Object value) {
+			return eFactory.convertToString(eDataType, value);
+		}
+	}
+
+	/**
+	 * Codec for the types whose string representation is given by toString().
+	 */
+	private static class ToStringCodec implements EDataTypeCodec {
+
+		private final Function<String, Object> parser;
+
+		ToStringCodec(Function<String, Object> parser) {
+			this.parser = parser;
+		}
+
+		@Override
+		public Object createFromString(EDataType eDataType, String literal) {
+			return literal == null ? null : parser.apply(literal);
+		}
+
+		@Override
+		public String convertToString(EDataType eDataType, Object value) {
+			return value == null ? null : value.toString();
+		}
+	}
+
+	/**
+	 * Codec for EEnums. Values are the Enumerator instances of the literals (the
+	 * generated Java enum literals, or the EEnumLiterals for dynamic models).
+	 */
+	private static class EEnumCodec implements EDataTypeCodec {
+
+		@Override
+		public Object createFromString(EDataType eDataType, String literal) {
+			if(literal == null) {
+				return null;
+			}
+			EEnumLiteral eEnumLiteral = ((EEnum) eDataType).getEEnumLiteralByLiteral(literal);
+			if(eEnumLiteral == null) {
+				throw new IllegalArgumentException(
+						"The value '" + literal + "' is not a valid enumerator of '" + eDataType.getName() + "'");
+			}
+			Object instance = eEnumLiteral.getInstance();
+			return instance == null ? eEnumLiteral : instance;
+		}
+
+		@Override
+		public String convertToString(EDataType eDataType, Object value) {
+			return value == null ? null : value.toString();
+		}
+	}
+
+	/**
+	 * Codec for EDate, using the same formats as EcoreFactory. Formats are kept per
+	 * thread instead of being shared behind a lock.
+	 */
+	private static class EDateCodec implements EDataTypeCodec {
+
+		private static final String[] PATTERNS = { "yyyy-MM-dd'T'HH:mm:ss'.'SSSZ", "yyyy-MM-dd'T'HH:mm:ss'.'SSS",
+				"yyyy-MM-dd'T'HH:mm:ss", "yyyy-MM-dd'T'HH:mm", "yyyy-MM-dd" };
+
+		private final ThreadLocal<DateFormat[]> formats = ThreadLocal.withInitial(() -> {
+			DateFormat[] dfs = new DateFormat[PATTERNS.length];
+			for(int i = 0; i < PATTERNS.length; i++) {
+				dfs[i] = new SimpleDateFormat(PATTERNS[i], Locale.ENGLISH);
+			}
+			return dfs;
+		});
+
+		@Override
+		public Object createFromString(EDataType eDataType, String literal) {
+			if(literal == null) {
+				return null;
+			}
+			ParseException exception = null;
+			for(DateFormat df: formats.get()) {
+				try {
+					return df.parse(literal);
+				} catch(ParseException e) {
+					exception = e;
+				}
+			}
+			throw new WrappedException(exception);
+		}
+
+		@Override
+		public String convertToString(EDataType eDataType, Object value) {
+			return value == null ? null : formats.get()[0].format((Date) value);
+		}
+	}
+}
@@ -13,6 +13,7 @@ package net.emf.csv;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.util.EcoreUtil;
@@ -22,18 +23,53 @@ import org.eclipse.emf.ecore.util.EcoreUtil;
  * EObject/id couples. It is loosely inspired by a part of the Map interface,
  * but provides specific behavior. In particular, get(EObject) always returns an
  * id (if the EObject is not yet recorded, a best effort id is returned).
+ * 
+ * In concurrent mode, lookups are lock-free and never block, while the rare
+ * write paths (new id assignment, intrinsic id change, explicit put) are
+ * serialized so that both directions of the index are updated atomically.
  */
 public class EObjectIdBiMap {
 
+	/**
+	 * True if the index may be shared between threads.
+	 */
+	private final boolean concurrent;
+
 	/**
 	 * EObject to id map
 	 */
-	private Map<EObject, String> eObjectToId = new HashMap<>();
+	private final Map<EObject, String> eObjectToId;
 
 	/**
 	 * Id to EObject map
 	 */
-	private Map<String, EObject> idToEObject = new HashMap<>();
+	private final Map<String, EObject> idToEObject;
+
+	public EObjectIdBiMap() {
+		this(false);
+	}
+
+	/**
+	 * @param concurrent if true, the index is backed by concurrent maps and may be
+	 *                   read and updated from several threads.
+	 */
+	public EObjectIdBiMap(boolean concurrent) {
+		this.concurrent = concurrent;
+		if(concurrent) {
+			eObjectToId = new ConcurrentHashMap<>();
+			idToEObject = new ConcurrentHashMap<>();
+		} else {
+			eObjectToId = new HashMap<>();
+			idToEObject = new HashMap<>();
+		}
+	}
+
+	/**
+	 * @return true if this index is safe for concurrent use.
+	 */
+	public boolean isConcurrent() {
+		return concurrent;
+	}
 
 	/**
 	 * 
@@ -43,6 +79,24 @@ public class EObjectIdBiMap {
 	 *         is returned.
 	 */
 	public String get(EObject key) {
+		if(concurrent) {
+			// Lock-free fast path: the EObject is known and its intrinsic id has not
+			// changed
+			String internalId = eObjectToId.get(key);
+			if(internalId != null) {
+				String id = EcoreUtil.getID(key);
+				if(id == null || id.equals(internalId)) {
+					return internalId;
+				}
+			}
+			synchronized(this) {
+				return doGet(key);
+			}
+		}
+		return doGet(key);
+	}
+
+	private String doGet(EObject key) {
 		String id = EcoreUtil.getID(key);
 		if(eObjectToId.containsKey(key)) {
 			// Check that the intrinsic ID of eObject has not changed
@@ -72,6 +126,12 @@ public class EObjectIdBiMap {
 	 *         null values.)
 	 */
 	public String put(EObject key, String value) {
+		if(concurrent) {
+			synchronized(this) {
+				idToEObject.put(value, key);
+				return eObjectToId.put(key, value);
+			}
+		}
 		idToEObject.put(value, key);
 		return eObjectToId.put(key, value);
 	}
@@ -82,6 +142,9 @@ public class EObjectIdBiMap {
 	 *         contains no mapping for the key.
 	 */
 	public EObject get(String key) {
+		if(key == null) {
+			return null;
+		}
 		return idToEObject.get(key);
 	}
 
@@ -94,6 +157,13 @@ public class EObjectIdBiMap {
 	 *         null values.)
 	 */
 	public EObject put(String key, EObject value) {
+		if(concurrent) {
+			synchronized(this) {
+				EObject previous = idToEObject.put(key, value);
+				eObjectToId.put(value, key);
+				return previous;
+			}
+		}
 		eObjectToId.put(value, key);
 		return idToEObject.put(key, value);
 	}
@@ -103,14 +173,45 @@ public class EObjectIdBiMap {
 	 * @return true if this map contains a mapping for the specified EObject
 	 */
 	public boolean containsKey(EObject eo) {
+		if(eo == null) {
+			return false;
+		}
 		return eObjectToId.containsKey(eo);
 	}
 
+	/**
+	 * @param key the id to remove
+	 * @return the EObject previously associated with key, or null if there was no
+	 *         mapping for key.
+	 */
+	public EObject remove(String key) {
+		if(key == null) {
+			return null;
+		}
+		if(concurrent) {
+			synchronized(this) {
+				return doRemove(key);
+			}
+		}
+		return doRemove(key);
+	}
+
+	private EObject doRemove(String key) {
+		EObject eo = idToEObject.remove(key);
+		if(eo != null && key.equals(eObjectToId.get(eo))) {
+			eObjectToId.remove(eo);
+		}
+		return eo;
+	}
+
 	/**
 	 * @param s id whose presence in this map is to be tested
 	 * @return true if this map contains a mapping for the specified id
 	 */
 	public boolean containsKey(String s) {
+		if(s == null) {
+			return false;
+		}
 		return idToEObject.containsKey(s);
 	}
 }